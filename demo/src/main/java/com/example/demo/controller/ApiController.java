@@ -1,18 +1,16 @@
 package com.example.demo.controller;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import weka.classifiers.Evaluation;
-import weka.classifiers.functions.MultilayerPerceptron;
-import weka.classifiers.trees.J48;
 import weka.clusterers.SimpleKMeans;
 import weka.core.Instances;
 import weka.core.converters.CSVLoader;
 import weka.core.converters.ConverterUtils;
 import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.Remove;
 import weka.filters.unsupervised.attribute.StringToNominal;
 
 import java.io.BufferedReader;
@@ -24,7 +22,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import com.example.demo.controller.WebConfig;
+import com.example.demo.service.AnalysisResultService;
+import com.example.demo.service.DatasetSampler;
+import com.example.demo.service.MemoryBudgetException;
+import com.example.demo.service.MemoryBudgetManager;
+import com.example.demo.service.MemoryEstimator;
 
 
 @CrossOrigin(origins = "http://localhost:4200")
@@ -32,24 +36,118 @@ import com.example.demo.controller.WebConfig;
 @RequestMapping("/api/analyze")
 public class ApiController {
 
+    private static final int CV_FOLDS = 10;
+
+    private final MemoryEstimator memoryEstimator;
+    private final MemoryBudgetManager memoryBudget;
+    private final DatasetSampler datasetSampler;
+    private final AnalysisResultService analysisResults;
+
+    public ApiController(MemoryEstimator memoryEstimator, MemoryBudgetManager memoryBudget,
+                         DatasetSampler datasetSampler, AnalysisResultService analysisResults) {
+        this.memoryEstimator = memoryEstimator;
+        this.memoryBudget = memoryBudget;
+        this.datasetSampler = datasetSampler;
+        this.analysisResults = analysisResults;
+    }
+
+    @GetMapping("/memory")
+    public Map<String, Object> memoryMetrics() {
+        return memoryBudget.metrics();
+    }
 
     @PostMapping("/upload")
-    public String analyzeFile(
+    public ResponseEntity<String> analyzeFile(
             @RequestParam("file") MultipartFile file,
             @RequestParam("method") String method,
             @RequestParam(value = "evaluation", required = false) String evaluationMethod) {
         try {
-            // Cargar los datos según el tipo de archivo
-            Instances data;
-            String fileName = file.getOriginalFilename();
-            if (fileName != null && fileName.endsWith(".csv")) {
-                data = loadCSV(file.getInputStream());
-            } else {
-                data = loadARFF(file.getInputStream());
+            try (PreparedData prepared = prepareData(file, method, evaluationMethod)) {
+                Instances data = prepared.data();
+
+                // Seleccionar el análisis
+                String result;
+                switch (method.toLowerCase()) {
+                    case "clustering":
+                        result = performClustering(data);
+                        break;
+                    case "classification":
+                        result = performClassification(data, evaluationMethod);
+                        break;
+                    case "kmeans":
+                        result = performKMeans(data);
+                        break;
+                    case "neuralnetwork":
+                        result = performNeuralNetwork(data, evaluationMethod);
+                        break;
+                    default:
+                        result = "Método de análisis no reconocido.";
+                }
+                return ResponseEntity.ok(downsampleNotice(prepared.originalRows(), data.numInstances()) + result);
             }
+        } catch (MemoryBudgetException e) {
+            // El rechazo por memoria lleva su propio estado para distinguir "reintentar" de "no cabe"
+            return ResponseEntity.status(budgetStatus(e)).body("Error durante el análisis: " + e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            //System.out.println("Dinosaurio");
+            return ResponseEntity.ok("Error durante el análisis: " + e.getMessage());
+
+        }
+    }
+
+
+    // Misma entrada que /upload, pero responde con métricas tipadas en JSON o CBOR
+    @PostMapping(value = "/result", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<Object> analyzeFileResult(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("method") String method,
+            @RequestParam(value = "evaluation", required = false) String evaluationMethod) {
+        try {
+            try (PreparedData prepared = prepareData(file, method, evaluationMethod)) {
+                Instances data = prepared.data();
+                int originalRows = prepared.originalRows();
+                switch (method.toLowerCase()) {
+                    case "clustering":
+                        return ResponseEntity.ok(analysisResults.cluster(data, originalRows, method, 3, true));
+                    case "kmeans":
+                        return ResponseEntity.ok(analysisResults.cluster(data, originalRows, method, 2, false));
+                    case "classification":
+                    case "neuralnetwork":
+                        return ResponseEntity.ok(analysisResults.classify(data, originalRows, method, evaluationMethod));
+                    default:
+                        return errorResponse(HttpStatus.BAD_REQUEST, "Método de análisis no reconocido.");
+                }
+            }
+        } catch (MemoryBudgetException e) {
+            return errorResponse(budgetStatus(e), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return errorResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return errorResponse(HttpStatus.SERVICE_UNAVAILABLE, "Análisis interrumpido.");
+        } catch (Exception e) {
+            e.printStackTrace();
+            return errorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Error durante el análisis: " + e.getMessage());
+        }
+    }
+
+    // 503 si el presupuesto está ocupado por otros análisis, 413 si no cabría nunca
+    private HttpStatus budgetStatus(MemoryBudgetException e) {
+        return e.isRetryable() ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.PAYLOAD_TOO_LARGE;
+    }
+
+    private ResponseEntity<Object> errorResponse(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Map.of("error", message));
+    }
 
-            // Validar los datos cargados
-            validateData(data);
+    // Carga, preprocesa y ajusta el conjunto al presupuesto de memoria.
+    // La reserva de la carga se toma antes de parsear y se amplía al pico del análisis;
+    // el llamador debe cerrar el resultado para liberar la memoria reservada.
+    private PreparedData prepareData(MultipartFile file, String method, String evaluationMethod) throws Exception {
+        MemoryBudgetManager.Reservation reservation = memoryBudget.reserve(memoryEstimator.estimateLoad(file.getSize()));
+        try {
+            Instances data = loadUploadedData(file);
 
             // Preprocesar los datos
             data = preprocessData(data);
@@ -59,33 +157,41 @@ public class ApiController {
                 data.setClassIndex(data.numAttributes() - 1);
             }
 
-            // Seleccionar el análisis
-            String result;
-            switch (method.toLowerCase()) {
-                case "clustering":
-                    result = performClustering(data);
-                    break;
-                case "classification":
-                    result = performClassification(data, evaluationMethod);
-                    break;
-                case "kmeans":
-                    result = performKMeans(data);
-                    break;
-                case "neuralnetwork":
-                    result = performNeuralNetwork(data, evaluationMethod);
-                    break;
-                default:
-                    result = "Método de análisis no reconocido.";
-            }
-            return result;
+            // Estimar la memoria del análisis, reducir el conjunto si no cabe y
+            // sustituir la reserva de carga por la del pico
+            int originalRows = data.numInstances();
+            data = fitToBudget(data, method, evaluationMethod);
+            reservation.resize(memoryEstimator.estimatePeak(data, method, evaluationMethod));
+            return new PreparedData(data, originalRows, reservation);
         } catch (Exception e) {
-            e.printStackTrace();
-            //System.out.println("Dinosaurio");
-            return "Error durante el análisis: " + e.getMessage();
+            reservation.close();
+            throw e;
+        }
+    }
+
+    private record PreparedData(Instances data, int originalRows, MemoryBudgetManager.Reservation reservation)
+            implements AutoCloseable {
 
+        @Override
+        public void close() {
+            reservation.close();
         }
     }
 
+    private Instances loadUploadedData(MultipartFile file) throws Exception {
+        // Cargar los datos según el tipo de archivo
+        Instances data;
+        String fileName = file.getOriginalFilename();
+        if (fileName != null && fileName.endsWith(".csv")) {
+            data = loadCSV(file.getInputStream());
+        } else {
+            data = loadARFF(file.getInputStream());
+        }
+
+        // Validar los datos cargados
+        validateData(data);
+        return data;
+    }
 
     private Instances loadCSV(InputStream inputStream) throws Exception {
         CSVLoader loader = new CSVLoader();
@@ -101,14 +207,10 @@ public class ApiController {
     private String performClustering(Instances data) {
         try {
             // Eliminar el atributo de clase antes de clustering
-            Remove remove = new Remove();
-            remove.setAttributeIndices(String.valueOf(data.classIndex() + 1)); // WEKA usa índices 1-based
-            remove.setInputFormat(data);
-            Instances dataWithoutClass = Filter.useFilter(data, remove);
+            Instances dataWithoutClass = analysisResults.withoutClass(data);
 
             // Configurar y aplicar K-Means
-            SimpleKMeans kMeans = new SimpleKMeans();
-            kMeans.setNumClusters(3); // Número de clusters deseado
+            SimpleKMeans kMeans = analysisResults.newKMeans(3); // Número de clusters deseado
             kMeans.buildClusterer(dataWithoutClass);
 
             // Construir resultados
@@ -127,14 +229,10 @@ public class ApiController {
     private String performKMeans(Instances data) {
         try {
             // Eliminar el atributo de clase antes de clustering
-            Remove remove = new Remove();
-            remove.setAttributeIndices(String.valueOf(data.classIndex() + 1)); // WEKA usa índices 1-based
-            remove.setInputFormat(data);
-            Instances dataWithoutClass = Filter.useFilter(data, remove);
+            Instances dataWithoutClass = analysisResults.withoutClass(data);
 
             // Configurar y aplicar K-Means
-            SimpleKMeans kMeans = new SimpleKMeans();
-            kMeans.setNumClusters(2); // Número de clusters deseado
+            SimpleKMeans kMeans = analysisResults.newKMeans(2); // Número de clusters deseado
             kMeans.buildClusterer(dataWithoutClass);
 
             // Crear el resultado del análisis
@@ -194,19 +292,8 @@ public class ApiController {
 
     private String performClassification(Instances data, String evaluationMethod) {
         try {
-            // Crear un clasificador J48 (C4.5)
-            J48 j48 = new J48();
-            j48.buildClassifier(data);
-
-            // Evaluar el modelo
-            Evaluation eval;
-            if ("cross-validation".equalsIgnoreCase(evaluationMethod)) {
-                eval = new Evaluation(data);
-                eval.crossValidateModel(j48, data, 10, new java.util.Random(1));
-            } else { // Por defecto: usar conjunto de entrenamiento
-                eval = new Evaluation(data);
-                eval.evaluateModel(j48, data);
-            }
+            // Crear un clasificador J48 (C4.5) y evaluar el modelo
+            Evaluation eval = analysisResults.evaluate(analysisResults.newJ48(), data, evaluationMethod);
 
             // Crear un StringBuilder para los resultados
             StringBuilder result = new StringBuilder("Resultados de la Clasificación:\n");
@@ -280,6 +367,30 @@ public class ApiController {
         return result;
     }
 
+    private Instances fitToBudget(Instances data, String method, String evaluationMethod) {
+        long peak = memoryEstimator.estimatePeak(data, method, evaluationMethod);
+        if (memoryBudget.fits(peak)) {
+            return data;
+        }
+        int rows = memoryEstimator.rowsWithin(data, method, evaluationMethod, memoryBudget.getTotalBytes());
+        // La validación cruzada necesita al menos una instancia por pliegue
+        int minRows = "cross-validation".equalsIgnoreCase(evaluationMethod) ? CV_FOLDS : 2;
+        if (!memoryBudget.isDownsampleEnabled() || rows < minRows) {
+            throw memoryBudget.reject("El conjunto de datos es demasiado grande para el presupuesto de memoria del servidor.");
+        }
+
+        // Tomar una muestra proporcional por clase que sí quepa en el presupuesto
+        memoryBudget.recordDownsample();
+        return datasetSampler.sample(data, rows);
+    }
+
+    private String downsampleNotice(int originalRows, int rows) {
+        if (rows >= originalRows) {
+            return "";
+        }
+        return "Aviso: por límite de memoria se analizaron " + rows + " de " + originalRows + " instancias.\n\n";
+    }
+
 
 
     private void validateCSVFormat(BufferedReader reader) throws Exception {
@@ -353,24 +464,8 @@ public class ApiController {
     private String performNeuralNetwork(Instances data, String evaluationMethod) {
         try {
             System.out.println("Se usa el metodo REdes ");
-            // Crear el clasificador de red neuronal
-            MultilayerPerceptron mlp = new MultilayerPerceptron();
-            // Configurar parámetros de la red
-            mlp.setLearningRate(0.1);
-            mlp.setMomentum(0.2);
-            mlp.setTrainingTime(400); // Número de épocas
-            mlp.setHiddenLayers("a"); // Número de nodos en cada capa oculta, 'a' es (atributos + clases) / 2
-
-            // Construir el clasificador con los datos
-            mlp.buildClassifier(data);
-
-            // Evaluar el modelo
-            Evaluation eval = new Evaluation(data);
-            if ("cross-validation".equalsIgnoreCase(evaluationMethod)) {
-                eval.crossValidateModel(mlp, data, 10, new java.util.Random(1));
-            } else {
-                eval.evaluateModel(mlp, data);
-            }
+            // Crear la red neuronal, construirla con los datos y evaluar el modelo
+            Evaluation eval = analysisResults.evaluate(analysisResults.newNeuralNetwork(), data, evaluationMethod);
 
             // Retornar resultados de la evaluación
             return eval.toSummaryString("\nResultados de la Red Neuronal\n", false) +
@@ -0,0 +1,13 @@
+package com.example.demo.model;
+
+// Métricas de evaluación de una clase concreta. Las que WEKA no puede calcular
+// (NaN, p. ej. el área ROC de una clase sin instancias) se envían como null.
+public record ClassMetrics(
+        String label,
+        Double truePositiveRate,
+        Double falsePositiveRate,
+        Double precision,
+        Double recall,
+        Double fMeasure,
+        Double areaUnderRoc) {
+}
@@ -0,0 +1,22 @@
+package com.example.demo.model;
+
+import java.util.List;
+
+// Resultado de una clasificación generado directamente desde weka.classifiers.Evaluation
+// originalInstances y analyzedInstances difieren si el conjunto se redujo por límite de memoria.
+// accuracy es la fracción de aciertos entre 0 y 1; las métricas NaN se envían como null.
+public record ClassificationResult(
+        String method,
+        String evaluation,
+        int originalInstances,
+        int analyzedInstances,
+        double numInstances,
+        double correct,
+        double incorrect,
+        Double accuracy,
+        Double kappa,
+        Double meanAbsoluteError,
+        Double rootMeanSquaredError,
+        List<ClassMetrics> classes,
+        int[][] confusionMatrix) {
+}
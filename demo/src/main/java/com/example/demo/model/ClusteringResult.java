@@ -0,0 +1,19 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Resultado de un clustering generado directamente desde weka.clusterers.SimpleKMeans
+// originalInstances y analyzedInstances difieren si el conjunto se redujo por límite de memoria
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ClusteringResult(
+        String method,
+        int originalInstances,
+        int analyzedInstances,
+        int numClusters,
+        double squaredError,
+        String[] attributes,
+        double[][] centroids,
+        int[] clusterSizes,
+        int[] assignments,
+        int incorrectlyClustered) {
+}
@@ -0,0 +1,165 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ClassMetrics;
+import com.example.demo.model.ClassificationResult;
+import com.example.demo.model.ClusteringResult;
+import org.springframework.stereotype.Service;
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.classifiers.functions.MultilayerPerceptron;
+import weka.classifiers.trees.J48;
+import weka.clusterers.SimpleKMeans;
+import weka.core.Instances;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.Remove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Construye los modelos de WEKA que usan ambos endpoints y las respuestas tipadas
+// a partir del estado de Evaluation y SimpleKMeans, sin pasar por las cadenas de texto.
+@Service
+public class AnalysisResultService {
+
+    private static final int CV_FOLDS = 10;
+
+    public J48 newJ48() {
+        // Clasificador J48 (C4.5) con la configuración por defecto
+        return new J48();
+    }
+
+    public MultilayerPerceptron newNeuralNetwork() {
+        MultilayerPerceptron mlp = new MultilayerPerceptron();
+        mlp.setLearningRate(0.1);
+        mlp.setMomentum(0.2);
+        mlp.setTrainingTime(400); // Número de épocas
+        mlp.setHiddenLayers("a"); // Número de nodos en cada capa oculta, 'a' es (atributos + clases) / 2
+        return mlp;
+    }
+
+    public SimpleKMeans newKMeans(int numClusters) throws Exception {
+        SimpleKMeans kMeans = new SimpleKMeans();
+        kMeans.setNumClusters(numClusters);
+        return kMeans;
+    }
+
+    // Copia del conjunto sin el atributo de clase, para clustering
+    public Instances withoutClass(Instances data) throws Exception {
+        Remove remove = new Remove();
+        remove.setAttributeIndices(String.valueOf(data.classIndex() + 1)); // WEKA usa índices 1-based
+        remove.setInputFormat(data);
+        return Filter.useFilter(data, remove);
+    }
+
+    // Entrena el clasificador y lo evalúa con validación cruzada o sobre el conjunto de entrenamiento
+    public Evaluation evaluate(Classifier classifier, Instances data, String evaluationMethod) throws Exception {
+        classifier.buildClassifier(data);
+
+        Evaluation eval = new Evaluation(data);
+        if ("cross-validation".equalsIgnoreCase(evaluationMethod)) {
+            eval.crossValidateModel(classifier, data, CV_FOLDS, new Random(1));
+        } else { // Por defecto: usar conjunto de entrenamiento
+            eval.evaluateModel(classifier, data);
+        }
+        return eval;
+    }
+
+    public ClassificationResult classify(Instances data, int originalInstances, String method,
+                                         String evaluationMethod) throws Exception {
+        Classifier classifier = "neuralnetwork".equalsIgnoreCase(method) ? newNeuralNetwork() : newJ48();
+        Evaluation eval = evaluate(classifier, data, evaluationMethod);
+
+        // Métricas por clase
+        List<ClassMetrics> classes = new ArrayList<>();
+        for (int i = 0; i < data.numClasses(); i++) {
+            classes.add(new ClassMetrics(
+                    data.classAttribute().value(i),
+                    finite(eval.truePositiveRate(i)),
+                    finite(eval.falsePositiveRate(i)),
+                    finite(eval.precision(i)),
+                    finite(eval.recall(i)),
+                    finite(eval.fMeasure(i)),
+                    finite(eval.areaUnderROC(i))));
+        }
+
+        // Matriz de confusión como enteros
+        double[][] matrix = eval.confusionMatrix();
+        int[][] confusionMatrix = new int[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            confusionMatrix[i] = new int[matrix[i].length];
+            for (int j = 0; j < matrix[i].length; j++) {
+                confusionMatrix[i][j] = (int) Math.round(matrix[i][j]);
+            }
+        }
+
+        return new ClassificationResult(
+                method,
+                "cross-validation".equalsIgnoreCase(evaluationMethod) ? "cross-validation" : "training-set",
+                originalInstances,
+                data.numInstances(),
+                eval.numInstances(),
+                eval.correct(),
+                eval.incorrect(),
+                finite(eval.pctCorrect() / 100),
+                finite(eval.kappa()),
+                finite(eval.meanAbsoluteError()),
+                finite(eval.rootMeanSquaredError()),
+                classes,
+                confusionMatrix);
+    }
+
+    public ClusteringResult cluster(Instances data, int originalInstances, String method, int numClusters,
+                                    boolean includeAssignments) throws Exception {
+        Instances dataWithoutClass = withoutClass(data);
+
+        // Configurar y aplicar K-Means conservando las asignaciones de cada instancia
+        SimpleKMeans kMeans = newKMeans(numClusters);
+        kMeans.setPreserveInstancesOrder(true);
+        kMeans.buildClusterer(dataWithoutClass);
+
+        int[] assignments = kMeans.getAssignments();
+
+        String[] attributes = new String[dataWithoutClass.numAttributes()];
+        for (int j = 0; j < attributes.length; j++) {
+            attributes[j] = dataWithoutClass.attribute(j).name();
+        }
+
+        Instances centroidInstances = kMeans.getClusterCentroids();
+        double[][] centroids = new double[centroidInstances.numInstances()][];
+        for (int i = 0; i < centroids.length; i++) {
+            centroids[i] = centroidInstances.instance(i).toDoubleArray();
+        }
+
+        double[] sizes = kMeans.getClusterSizes();
+        int[] clusterSizes = new int[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            clusterSizes[i] = (int) Math.round(sizes[i]);
+        }
+
+        // Instancias cuyo clúster no coincide con la clase real
+        int incorrectlyClustered = 0;
+        for (int i = 0; i < assignments.length; i++) {
+            if (assignments[i] != data.instance(i).classValue()) {
+                incorrectlyClustered++;
+            }
+        }
+
+        return new ClusteringResult(
+                method,
+                originalInstances,
+                data.numInstances(),
+                kMeans.getNumClusters(),
+                kMeans.getSquaredError(),
+                attributes,
+                centroids,
+                clusterSizes,
+                includeAssignments ? assignments : null,
+                incorrectlyClustered);
+    }
+
+    // NaN e infinitos no tienen representación numérica común en JSON y CBOR: se envían como null
+    private static Double finite(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? null : value;
+    }
+}
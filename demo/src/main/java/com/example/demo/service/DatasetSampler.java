@@ -0,0 +1,33 @@
+package com.example.demo.service;
+
+import org.springframework.stereotype.Component;
+import weka.core.Instances;
+
+import java.util.Random;
+
+// Reduce un conjunto de datos a un número de filas sin reemplazo. Si la clase es nominal
+// la muestra es proporcional a cada clase, de modo que ninguna con al menos N/filas
+// instancias se queda fuera.
+@Component
+public class DatasetSampler {
+
+    public Instances sample(Instances data, int rows) {
+        int total = data.numInstances();
+        if (rows >= total) {
+            return data;
+        }
+
+        // Orden aleatorio y, si hay clase nominal, agrupado por clase
+        data.randomize(new Random(1));
+        if (data.classIndex() >= 0 && data.classAttribute().isNominal()) {
+            data.sort(data.classIndex());
+        }
+
+        // Muestreo sistemático: una fila cada total/rows posiciones recorre todas las clases
+        Instances sample = new Instances(data, rows);
+        for (int i = 0; i < rows; i++) {
+            sample.add(data.instance((int) ((long) i * total / rows)));
+        }
+        return sample;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+// Rechazo de un análisis por el presupuesto de memoria. Es reintentable cuando el
+// presupuesto solo estaba ocupado por otros análisis, y no lo es cuando el análisis
+// no cabría ni con todo el presupuesto libre.
+public class MemoryBudgetException extends IllegalStateException {
+
+    private final boolean retryable;
+
+    public MemoryBudgetException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Controla cuánta memoria pueden reservar a la vez los análisis en curso.
+// Las reservas se cuentan en KB para que quepan en los permisos de un Semaphore.
+@Service
+public class MemoryBudgetManager {
+
+    private static final long KB = 1024;
+
+    private final Semaphore budget;
+    private final int totalKb;
+    private final long queueTimeoutMs;
+    private final boolean downsampleEnabled;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong downsampled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public MemoryBudgetManager(@Value("${weka.memory.budget-mb:0}") long budgetMb,
+                               @Value("${weka.memory.queue-timeout-ms:30000}") long queueTimeoutMs,
+                               @Value("${weka.memory.downsample:true}") boolean downsampleEnabled) {
+        // Por defecto se reserva la mitad del heap máximo para los análisis
+        long budgetBytes = budgetMb > 0 ? budgetMb * KB * KB : Runtime.getRuntime().maxMemory() / 2;
+        this.totalKb = (int) Math.min(Integer.MAX_VALUE, budgetBytes / KB);
+        this.budget = new Semaphore(totalKb, true);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.downsampleEnabled = downsampleEnabled;
+    }
+
+    public long getTotalBytes() {
+        return totalKb * KB;
+    }
+
+    public boolean isDownsampleEnabled() {
+        return downsampleEnabled;
+    }
+
+    public boolean fits(long bytes) {
+        return toKb(bytes) <= totalKb;
+    }
+
+    public void recordDownsample() {
+        downsampled.incrementAndGet();
+    }
+
+    // Rechazo definitivo: el análisis no cabe en el presupuesto total
+    public MemoryBudgetException reject(String message) {
+        return reject(message, false);
+    }
+
+    private MemoryBudgetException reject(String message, boolean retryable) {
+        rejected.incrementAndGet();
+        return new MemoryBudgetException(message, retryable);
+    }
+
+    // Reserva memoria para un análisis; espera en cola si no hay presupuesto libre
+    public Reservation reserve(long bytes) throws InterruptedException {
+        int permits = checkFits(bytes);
+        acquire(permits);
+        admitted.incrementAndGet();
+        return new Reservation(permits);
+    }
+
+    public Map<String, Object> metrics() {
+        int freeKb = budget.availablePermits();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("totalBytes", getTotalBytes());
+        metrics.put("reservedBytes", (totalKb - freeKb) * KB);
+        metrics.put("freeBytes", freeKb * KB);
+        metrics.put("waiting", budget.getQueueLength());
+        metrics.put("admitted", admitted.get());
+        metrics.put("queued", queued.get());
+        metrics.put("downsampled", downsampled.get());
+        metrics.put("rejected", rejected.get());
+        return metrics;
+    }
+
+    private int checkFits(long bytes) {
+        int permits = toKb(bytes);
+        if (permits > totalKb) {
+            throw reject("El análisis requiere aproximadamente " + toMb(bytes) + " MB y el presupuesto es de "
+                    + toMb(getTotalBytes()) + " MB.");
+        }
+        return permits;
+    }
+
+    private void acquire(int permits) throws InterruptedException {
+        // tryAcquire sin espera se salta la cola aunque el semáforo sea justo;
+        // con espera 0 respeta el orden de los que ya están esperando
+        if (!budget.tryAcquire(permits, 0, TimeUnit.MILLISECONDS)) {
+            queued.incrementAndGet();
+            if (!budget.tryAcquire(permits, queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw reject("Servidor ocupado: no hay memoria libre para el análisis, inténtelo más tarde.", true);
+            }
+        }
+    }
+
+    static int toKb(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, (bytes + KB - 1) / KB);
+    }
+
+    private static long toMb(long bytes) {
+        return bytes / (KB * KB);
+    }
+
+    public class Reservation implements AutoCloseable {
+
+        private int permits;
+        private boolean released;
+
+        private Reservation(int permits) {
+            this.permits = permits;
+        }
+
+        // Ajusta la reserva a un nuevo tamaño (p. ej. de la carga al pico del análisis).
+        // Para crecer solo se intenta tomar la diferencia sin esperar; si no hay sitio se
+        // sueltan los permisos actuales antes de esperar el total, para no retener memoria
+        // mientras se espera (dos reservas creciendo a la vez se bloquearían mutuamente).
+        public void resize(long bytes) throws InterruptedException {
+            if (released) {
+                throw new IllegalStateException("La reserva ya fue liberada.");
+            }
+            int target = checkFits(bytes);
+            if (target > permits) {
+                if (!budget.tryAcquire(target - permits, 0, TimeUnit.MILLISECONDS)) {
+                    budget.release(permits);
+                    permits = 0;
+                    acquire(target);
+                }
+            } else if (target < permits) {
+                budget.release(permits - target);
+            }
+            permits = target;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                budget.release(permits);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.service;
+
+import org.springframework.stereotype.Component;
+import weka.core.Attribute;
+import weka.core.Instances;
+
+// Estima el pico de memoria (en bytes) que necesitará un análisis a partir
+// del tamaño del conjunto de datos ya cargado y preprocesado (con la clase asignada).
+@Component
+public class MemoryEstimator {
+
+    // Tamaño aproximado de un DenseInstance: cabecera + referencias + peso + cabecera del double[]
+    private static final long INSTANCE_OVERHEAD = 48;
+    private static final long BYTES_PER_VALUE = 8;
+    // Coste aproximado de cada valor nominal (String + entrada en el mapa de índices)
+    private static final long BYTES_PER_NOMINAL_VALUE = 100;
+    // Factor de expansión al parsear un archivo de texto a Instances, incluidas
+    // las copias del preprocesado (StringToNominal / NumericToNominal)
+    private static final long LOAD_FACTOR = 6;
+
+    public long estimateLoad(long fileSizeBytes) {
+        return Math.max(fileSizeBytes, 0) * LOAD_FACTOR;
+    }
+
+    public long estimateDataset(Instances data) {
+        return estimateDataset(data.numInstances(), data.numAttributes(), nominalValues(data));
+    }
+
+    public long estimateDataset(long rows, long attributes, long nominalValues) {
+        return rows * (INSTANCE_OVERHEAD + attributes * BYTES_PER_VALUE)
+                + nominalValues * BYTES_PER_NOMINAL_VALUE;
+    }
+
+    public long estimatePeak(Instances data, String method, String evaluationMethod) {
+        return estimatePeak(data, data.numInstances(), method, evaluationMethod);
+    }
+
+    // El pico es lineal en el número de filas: un término fijo (valores nominales)
+    // más un coste por fila multiplicado por las copias de cada método
+    long estimatePeak(Instances data, long rows, String method, String evaluationMethod) {
+        long dataset = estimateDataset(rows, data.numAttributes(), nominalValues(data));
+        boolean crossValidation = "cross-validation".equalsIgnoreCase(evaluationMethod);
+
+        // Conjunto ya cargado
+        long peak = dataset;
+
+        switch (method == null ? "" : method.toLowerCase()) {
+            case "clustering":
+            case "kmeans":
+                // Copia sin la clase (Remove) + copia interna de SimpleKMeans (ReplaceMissingValues)
+                peak += dataset * 2;
+                break;
+            case "classification":
+                // J48 copia los datos y reparte subconjuntos por rama
+                peak += dataset * 2;
+                if (crossValidation) {
+                    // Copia aleatorizada + trainCV/testCV del pliegue + modelo del pliegue
+                    peak += dataset * 3;
+                }
+                break;
+            case "neuralnetwork":
+                // NominalToBinary expande cada atributo nominal a una columna por valor
+                long expanded = estimateDataset(rows, expandedWidth(data), 0);
+                peak += expanded * 2;
+                if (crossValidation) {
+                    peak += dataset * 2 + expanded * 2;
+                }
+                break;
+            default:
+                break;
+        }
+        return peak;
+    }
+
+    // Número máximo de filas cuyo pico estimado cabe en el presupuesto dado
+    public int rowsWithin(Instances data, String method, String evaluationMethod, long budgetBytes) {
+        int rows = data.numInstances();
+        long fullPeak = estimatePeak(data, rows, method, evaluationMethod);
+        if (fullPeak <= budgetBytes || rows == 0) {
+            return rows;
+        }
+        // Descontar el término fijo, que no disminuye al reducir filas
+        long fixedPeak = estimatePeak(data, 0, method, evaluationMethod);
+        if (fixedPeak >= budgetBytes) {
+            return 0;
+        }
+        double perRow = (double) (fullPeak - fixedPeak) / rows;
+        return (int) Math.min(rows, Math.floor((budgetBytes - fixedPeak) / perRow));
+    }
+
+    private long nominalValues(Instances data) {
+        long total = 0;
+        for (int i = 0; i < data.numAttributes(); i++) {
+            Attribute attribute = data.attribute(i);
+            if (attribute.isNominal() || attribute.isString()) {
+                total += attribute.numValues();
+            }
+        }
+        return total;
+    }
+
+    private long expandedWidth(Instances data) {
+        long width = 0;
+        for (int i = 0; i < data.numAttributes(); i++) {
+            Attribute attribute = data.attribute(i);
+            if (i != data.classIndex() && attribute.isNominal() && attribute.numValues() > 2) {
+                width += attribute.numValues();
+            } else {
+                width++;
+            }
+        }
+        return width;
+    }
+}
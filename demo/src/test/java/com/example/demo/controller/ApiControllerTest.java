@@ -0,0 +1,246 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.AnalysisResultService;
+import com.example.demo.service.DatasetSampler;
+import com.example.demo.service.MemoryBudgetManager;
+import com.example.demo.service.MemoryEstimator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ApiController.class)
+@Import({MemoryEstimator.class, MemoryBudgetManager.class, DatasetSampler.class, AnalysisResultService.class})
+@TestPropertySource(properties = {"weka.memory.budget-mb=1", "weka.memory.queue-timeout-ms=50"})
+class ApiControllerTest {
+
+	private static final int ROWS = 30;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MemoryBudgetManager memoryBudget;
+
+	private final ObjectMapper jsonMapper = new ObjectMapper();
+
+	private MockMultipartFile irisFile() throws Exception {
+		byte[] content = new ClassPathResource("iris-small.arff").getInputStream().readAllBytes();
+		return new MockMultipartFile("file", "iris-small.arff", "text/plain", content);
+	}
+
+	// 6000 filas x (2 numéricos + clase con "c" minoritaria). El pico estimado de la clasificación
+	// (3 x (6000 x 72 + 300) bytes) supera el presupuesto de 1 MB, pero la carga (6 x ~45 KB) sí
+	// cabe, así que el conjunto se reduce a (1048576 - 900) / 216 = 4850 filas.
+	private MockMultipartFile oversizedFile() {
+		StringBuilder arff = new StringBuilder("@relation oversized\n\n")
+				.append("@attribute x numeric\n@attribute y numeric\n@attribute class {a,b,c}\n\n@data\n");
+		for (int i = 0; i < 6000; i++) {
+			char label = i % 20 == 0 ? 'c' : i % 2 == 0 ? 'a' : 'b';
+			arff.append(i % 97).append(',').append(i % 89).append(',').append(label).append('\n');
+		}
+		return new MockMultipartFile("file", "oversized.arff", "text/plain", arff.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	// Mismo conjunto, pero declarando una clase que no aparece en ninguna instancia
+	private MockMultipartFile irisWithUnseenClass() throws Exception {
+		String content = new String(irisFile().getBytes(), StandardCharsets.UTF_8)
+				.replace("{Iris-setosa,Iris-versicolor,Iris-virginica}",
+						"{Iris-setosa,Iris-versicolor,Iris-virginica,Iris-unseen}");
+		return new MockMultipartFile("file", "iris-unseen.arff", "text/plain", content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private MvcResult upload(MockMultipartFile file, String method) throws Exception {
+		return mockMvc.perform(multipart("/api/analyze/upload").file(file).param("method", method)).andReturn();
+	}
+
+	private MvcResult analyze(MockMultipartFile file, String method, String evaluation, MediaType accept)
+			throws Exception {
+		var request = multipart("/api/analyze/result").file(file).param("method", method).accept(accept);
+		if (evaluation != null) {
+			request.param("evaluation", evaluation);
+		}
+		return mockMvc.perform(request).andReturn();
+	}
+
+	@Test
+	void classificationReturnsJsonMetrics() throws Exception {
+		MvcResult result = analyze(irisFile(), "classification", null, MediaType.APPLICATION_JSON);
+
+		assertEquals(200, result.getResponse().getStatus());
+		assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(result.getResponse().getContentType())));
+
+		JsonNode body = jsonMapper.readTree(result.getResponse().getContentAsByteArray());
+		assertEquals(ROWS, body.get("originalInstances").asInt());
+		assertEquals(ROWS, body.get("analyzedInstances").asInt());
+		assertEquals(3, body.get("classes").size());
+		assertEquals("Iris-setosa", body.get("classes").get(0).get("label").asText());
+
+		// accuracy es una fracción, no un porcentaje
+		double accuracy = body.get("accuracy").asDouble();
+		assertTrue(accuracy > 0 && accuracy <= 1);
+
+		// Matriz de confusión 3x3 cuyas celdas suman el número de instancias evaluadas
+		JsonNode matrix = body.get("confusionMatrix");
+		assertEquals(3, matrix.size());
+		int total = 0;
+		for (JsonNode row : matrix) {
+			assertEquals(3, row.size());
+			for (JsonNode cell : row) {
+				total += cell.asInt();
+			}
+		}
+		assertEquals(ROWS, total);
+	}
+
+	@Test
+	void classificationSupportsCrossValidation() throws Exception {
+		mockMvc.perform(multipart("/api/analyze/result").file(irisFile())
+						.param("method", "classification")
+						.param("evaluation", "cross-validation")
+						.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.evaluation").value("cross-validation"))
+				.andExpect(jsonPath("$.numInstances").value((double) ROWS));
+	}
+
+	@Test
+	void clusteringIsNegotiatedAsCbor() throws Exception {
+		MvcResult result = analyze(irisFile(), "clustering", null, MediaType.APPLICATION_CBOR);
+
+		assertEquals(200, result.getResponse().getStatus());
+		assertTrue(MediaType.APPLICATION_CBOR.isCompatibleWith(MediaType.parseMediaType(result.getResponse().getContentType())));
+
+		JsonNode body = new CBORMapper().readTree(result.getResponse().getContentAsByteArray());
+		assertEquals(3, body.get("numClusters").asInt());
+		assertEquals(ROWS, body.get("analyzedInstances").asInt());
+
+		// Un centroide por clúster con un valor por atributo (sin la clase)
+		assertEquals(3, body.get("centroids").size());
+		assertEquals(4, body.get("centroids").get(0).size());
+
+		int totalSize = 0;
+		for (JsonNode size : body.get("clusterSizes")) {
+			totalSize += size.asInt();
+		}
+		assertEquals(ROWS, totalSize);
+		assertEquals(ROWS, body.get("assignments").size());
+	}
+
+	@Test
+	void kMeansOmitsAssignments() throws Exception {
+		mockMvc.perform(multipart("/api/analyze/result").file(irisFile())
+						.param("method", "kMeans")
+						.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+				.andExpect(jsonPath("$.numClusters").value(2))
+				.andExpect(jsonPath("$.clusterSizes.length()").value(2))
+				.andExpect(jsonPath("$.assignments").doesNotExist());
+	}
+
+	@Test
+	void unknownMethodIsBadRequest() throws Exception {
+		mockMvc.perform(multipart("/api/analyze/result").file(irisFile())
+						.param("method", "desconocido")
+						.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.error").exists());
+	}
+
+	@Test
+	void fileLargerThanTheBudgetIsPayloadTooLarge() throws Exception {
+		// 200 KB * factor de carga 6 supera el presupuesto de 1 MB antes de parsear
+		MockMultipartFile large = new MockMultipartFile("file", "large.arff", "text/plain", new byte[200 * 1024]);
+
+		MvcResult result = analyze(large, "classification", null, MediaType.APPLICATION_JSON);
+
+		assertEquals(413, result.getResponse().getStatus());
+		assertFalse(jsonMapper.readTree(result.getResponse().getContentAsByteArray()).get("error").asText().isEmpty());
+		assertEquals(413, upload(large, "classification").getResponse().getStatus());
+	}
+
+	@Test
+	void busyBudgetIsServiceUnavailable() throws Exception {
+		// Con todo el presupuesto ocupado la reserva de carga agota la espera de 50 ms
+		try (MemoryBudgetManager.Reservation held = memoryBudget.reserve(memoryBudget.getTotalBytes())) {
+			assertEquals(503, analyze(irisFile(), "classification", null, MediaType.APPLICATION_JSON)
+					.getResponse().getStatus());
+			assertEquals(503, upload(irisFile(), "classification").getResponse().getStatus());
+		}
+	}
+
+	@Test
+	void oversizedDatasetIsDownsampledKeepingEveryClass() throws Exception {
+		MvcResult result = analyze(oversizedFile(), "classification", null, MediaType.APPLICATION_JSON);
+
+		assertEquals(200, result.getResponse().getStatus());
+		JsonNode body = jsonMapper.readTree(result.getResponse().getContentAsByteArray());
+		assertEquals(6000, body.get("originalInstances").asInt());
+		assertEquals(4850, body.get("analyzedInstances").asInt());
+
+		// Cada fila de la matriz de confusión corresponde a una clase real presente en la muestra
+		for (JsonNode row : body.get("confusionMatrix")) {
+			int total = 0;
+			for (JsonNode cell : row) {
+				total += cell.asInt();
+			}
+			assertTrue(total > 0);
+		}
+
+		mockMvc.perform(get("/api/analyze/memory"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.downsampled").value(greaterThanOrEqualTo(1)))
+				.andExpect(jsonPath("$.reservedBytes").value(0));
+	}
+
+	@Test
+	void textEndpointReportsDownsampling() throws Exception {
+		MvcResult result = upload(oversizedFile(), "classification");
+
+		assertEquals(200, result.getResponse().getStatus());
+		String body = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+		assertTrue(body.startsWith("Aviso:"));
+		assertTrue(body.contains("se analizaron 4850 de 6000 instancias."));
+	}
+
+	@Test
+	void undefinedMetricsAreNullInJsonAndCbor() throws Exception {
+		MvcResult json = analyze(irisWithUnseenClass(), "classification", null, MediaType.APPLICATION_JSON);
+		MvcResult cbor = analyze(irisWithUnseenClass(), "classification", null, MediaType.APPLICATION_CBOR);
+
+		assertEquals(200, json.getResponse().getStatus());
+		assertEquals(200, cbor.getResponse().getStatus());
+
+		JsonNode jsonBody = jsonMapper.readTree(json.getResponse().getContentAsByteArray());
+		JsonNode cborBody = new CBORMapper().readTree(cbor.getResponse().getContentAsByteArray());
+		for (JsonNode body : new JsonNode[]{jsonBody, cborBody}) {
+			JsonNode classes = body.get("classes");
+			assertEquals(4, classes.size());
+			// El área ROC de una clase sin instancias es NaN en WEKA y se envía como null
+			assertTrue(classes.get(3).get("areaUnderRoc").isNull());
+			assertTrue(classes.get(0).get("areaUnderRoc").isNumber());
+		}
+	}
+}
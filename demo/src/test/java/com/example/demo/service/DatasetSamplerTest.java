@@ -0,0 +1,60 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DatasetSamplerTest {
+
+	private final DatasetSampler sampler = new DatasetSampler();
+
+	// Conjunto desbalanceado: 800 "a", 150 "b" y 50 "c"
+	private Instances imbalanced() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("x"));
+		attributes.add(new Attribute("class", List.of("a", "b", "c")));
+		Instances data = new Instances("imbalanced", attributes, 1000);
+		for (int i = 0; i < 1000; i++) {
+			int label = i < 800 ? 0 : i < 950 ? 1 : 2;
+			data.add(new DenseInstance(1.0, new double[]{i, label}));
+		}
+		data.setClassIndex(1);
+		return data;
+	}
+
+	@Test
+	void keepsTheDatasetWhenItAlreadyFits() {
+		Instances data = imbalanced();
+		assertSame(data, sampler.sample(data, 1000));
+	}
+
+	@Test
+	void smallSampleKeepsEveryClassInProportion() {
+		// 50 filas < N / 10: la muestra sigue conteniendo todas las clases
+		Instances sample = sampler.sample(imbalanced(), 50);
+
+		assertEquals(50, sample.numInstances());
+		int[] counts = new int[3];
+		for (int i = 0; i < sample.numInstances(); i++) {
+			counts[(int) sample.instance(i).classValue()]++;
+		}
+		assertEquals(40, counts[0]);
+		assertEquals(8, counts[1]);
+		assertEquals(2, counts[2]);
+	}
+
+	@Test
+	void samplesWithoutClass() {
+		Instances data = imbalanced();
+		data.setClassIndex(-1);
+
+		assertEquals(100, sampler.sample(data, 100).numInstances());
+	}
+}
@@ -0,0 +1,133 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MemoryBudgetManagerTest {
+
+	private static final long KB = 1024;
+
+	// Presupuesto de 1 MB (1024 KB) y 50 ms de espera en cola
+	private final MemoryBudgetManager manager = new MemoryBudgetManager(1, 50, true);
+
+	@Test
+	void roundsBytesUpToWholeKilobytes() {
+		assertEquals(0, MemoryBudgetManager.toKb(0));
+		assertEquals(1, MemoryBudgetManager.toKb(1));
+		assertEquals(1, MemoryBudgetManager.toKb(1024));
+		assertEquals(2, MemoryBudgetManager.toKb(1025));
+	}
+
+	@Test
+	void reportsReservedAndFreeBudget() throws Exception {
+		try (MemoryBudgetManager.Reservation reservation = manager.reserve(512 * KB - 1)) {
+			Map<String, Object> metrics = manager.metrics();
+			assertEquals(1024 * KB, metrics.get("totalBytes"));
+			assertEquals(512 * KB, metrics.get("reservedBytes"));
+			assertEquals(512 * KB, metrics.get("freeBytes"));
+			assertEquals(1L, metrics.get("admitted"));
+		}
+	}
+
+	@Test
+	void rejectsRequestsLargerThanTheWholeBudget() {
+		assertThrows(IllegalStateException.class, () -> manager.reserve(1024 * KB + 1));
+		assertEquals(1L, manager.metrics().get("rejected"));
+		assertEquals(0L, manager.metrics().get("reservedBytes"));
+	}
+
+	@Test
+	void timesOutWhenTheBudgetIsFull() throws Exception {
+		try (MemoryBudgetManager.Reservation reservation = manager.reserve(1024 * KB)) {
+			assertThrows(IllegalStateException.class, () -> manager.reserve(1));
+		}
+		assertEquals(1L, manager.metrics().get("queued"));
+		assertEquals(1L, manager.metrics().get("rejected"));
+	}
+
+	@Test
+	void releasesOnCloseOnlyOnce() throws Exception {
+		MemoryBudgetManager.Reservation reservation = manager.reserve(256 * KB);
+		reservation.close();
+		reservation.close();
+
+		assertEquals(0L, manager.metrics().get("reservedBytes"));
+		assertEquals(1024 * KB, manager.metrics().get("freeBytes"));
+	}
+
+	@Test
+	void resizesAnExistingReservation() throws Exception {
+		try (MemoryBudgetManager.Reservation reservation = manager.reserve(100 * KB)) {
+			reservation.resize(300 * KB);
+			assertEquals(300 * KB, manager.metrics().get("reservedBytes"));
+
+			reservation.resize(50 * KB);
+			assertEquals(50 * KB, manager.metrics().get("reservedBytes"));
+
+			assertThrows(IllegalStateException.class, () -> reservation.resize(2048 * KB));
+			assertEquals(50 * KB, manager.metrics().get("reservedBytes"));
+		}
+		assertEquals(0L, manager.metrics().get("reservedBytes"));
+	}
+
+	@Test
+	void growsByWaitingForTheWholeTargetWhenContended() throws Exception {
+		MemoryBudgetManager contended = new MemoryBudgetManager(1, 2000, true);
+		MemoryBudgetManager.Reservation other = contended.reserve(600 * KB);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (MemoryBudgetManager.Reservation reservation = contended.reserve(300 * KB)) {
+			// La otra reserva se libera mientras esta espera para crecer
+			executor.submit(() -> {
+				Thread.sleep(100);
+				other.close();
+				return null;
+			});
+			reservation.resize(600 * KB);
+
+			assertEquals(600 * KB, contended.metrics().get("reservedBytes"));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(0L, contended.metrics().get("reservedBytes"));
+	}
+
+	@Test
+	void twoGrowingReservationsDoNotBlockEachOther() throws Exception {
+		// Cada una cabe sola (700 KB) pero no las dos a la vez; ninguna debe agotar la espera
+		MemoryBudgetManager contended = new MemoryBudgetManager(1, 2000, true);
+		MemoryBudgetManager.Reservation first = contended.reserve(400 * KB);
+		MemoryBudgetManager.Reservation second = contended.reserve(400 * KB);
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> growFirst = executor.submit(() -> growAndRelease(first, start));
+			Future<?> growSecond = executor.submit(() -> growAndRelease(second, start));
+			start.countDown();
+
+			growFirst.get(5, TimeUnit.SECONDS);
+			growSecond.get(5, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(0L, contended.metrics().get("rejected"));
+		assertEquals(0L, contended.metrics().get("reservedBytes"));
+	}
+
+	private Void growAndRelease(MemoryBudgetManager.Reservation reservation, CountDownLatch start) throws Exception {
+		start.await();
+		try (reservation) {
+			reservation.resize(700 * KB);
+			Thread.sleep(50);
+		}
+		return null;
+	}
+}
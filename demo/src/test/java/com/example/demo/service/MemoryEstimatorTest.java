@@ -0,0 +1,87 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryEstimatorTest {
+
+	private final MemoryEstimator estimator = new MemoryEstimator();
+
+	private Instances data;
+
+	// 100 filas x 4 atributos: dos numéricos, uno nominal de 4 valores y la clase nominal de 3 valores.
+	// Cada fila ocupa 48 + 4 * 8 = 80 bytes y los valores nominales 7 * 100 = 700 bytes.
+	@BeforeEach
+	void setUp() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("num1"));
+		attributes.add(new Attribute("num2"));
+		attributes.add(new Attribute("color", List.of("r", "g", "b", "y")));
+		attributes.add(new Attribute("class", List.of("a", "b", "c")));
+		data = new Instances("test", attributes, 100);
+		for (int i = 0; i < 100; i++) {
+			data.add(new DenseInstance(1.0, new double[]{i, i * 2, i % 4, i % 3}));
+		}
+		data.setClassIndex(3);
+	}
+
+	@Test
+	void estimatesLoadFromFileSize() {
+		assertEquals(6000, estimator.estimateLoad(1000));
+		assertEquals(0, estimator.estimateLoad(-1));
+	}
+
+	@Test
+	void estimatesDatasetFromRowsAttributesAndNominalValues() {
+		assertEquals(8700, estimator.estimateDataset(data));
+	}
+
+	@Test
+	void estimatesPeakPerMethod() {
+		assertEquals(26100, estimator.estimatePeak(data, "kMeans", null));
+		assertEquals(26100, estimator.estimatePeak(data, "clustering", null));
+		assertEquals(26100, estimator.estimatePeak(data, "classification", null));
+		assertEquals(8700, estimator.estimatePeak(data, "desconocido", null));
+	}
+
+	@Test
+	void crossValidationAddsFoldCopies() {
+		assertEquals(52200, estimator.estimatePeak(data, "classification", "cross-validation"));
+	}
+
+	@Test
+	void neuralNetworkExpandsNominalAttributesButNotTheClass() {
+		// Ancho expandido: 2 numéricos + 4 columnas de "color" + 1 de la clase = 7 -> 100 * (48 + 56)
+		assertEquals(8700 + 2 * 10400, estimator.estimatePeak(data, "neuralNetwork", null));
+		assertEquals(8700 + 4 * 10400 + 2 * 8700,
+				estimator.estimatePeak(data, "neuralNetwork", "cross-validation"));
+	}
+
+	@Test
+	void rowsWithinKeepsEveryRowWhenTheBudgetIsEnough() {
+		assertEquals(100, estimator.rowsWithin(data, "classification", "cross-validation", 60000));
+	}
+
+	@Test
+	void rowsWithinDiscountsTheFixedNominalTerm() {
+		// Pico = 6 * (80 * filas + 700) = 480 * filas + 4200
+		int rows = estimator.rowsWithin(data, "classification", "cross-validation", 24000);
+
+		assertEquals(41, rows);
+		assertTrue(estimator.estimatePeak(data, rows, "classification", "cross-validation") <= 24000);
+	}
+
+	@Test
+	void rowsWithinIsZeroWhenTheFixedTermDoesNotFit() {
+		assertEquals(0, estimator.rowsWithin(data, "classification", "cross-validation", 4000));
+	}
+}